@@ -0,0 +1,184 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 批量校验、解析定宽的yyyy-MM-dd日期，适合按列存放的ASCII字节。
+ * <p>
+ * 每条记录占stride个字节，前10个字节是日期。只接受严格的10位yyyy-MM-dd（不接受2019-2-1这种写法），
+ * 除此之外结果和DateUtil.isValid(String, "yyyy-MM-dd")相同，包括1582年以前按儒略历判断闰年。
+ * <p>
+ * 每条记录的前8个字节作为一个long读入，数字位和分隔符位用按字节的位运算一次校验（SWAR），
+ * 不创建任何对象，也不需要jdk.incubator.vector。
+ * <pre>
+ *     int[] dates = new int[count];
+ *     DateBatchParser.parse(bytes, 0, 10, count, dates);   // dates[i] = 20190215，不合法为-1
+ * </pre>
+ */
+public class DateBatchParser {
+    private final static int RECORD_LENGTH = 10;
+
+    /**
+     * 第4、7个字节是分隔符
+     */
+    private final static long SEPARATOR_MASK = 0xFF0000FF00000000L;
+    private final static long SEPARATORS = 0x2D00002D00000000L;
+    private final static long ZEROS = 0x3030303030303030L;
+    private final static long HIGH_BITS = 0x8080808080808080L;
+    private final static long DIGIT_HIGH_BITS = HIGH_BITS & ~SEPARATOR_MASK;
+
+    /**
+     * 批量解析
+     *
+     * @param bytes  日期字节
+     * @param offset 第一条记录的位置
+     * @param stride 每条记录的字节数，不小于10
+     * @param count  记录数
+     * @param result 解析结果，yyyyMMdd形式的数字，如20190215，不合法的日期为-1
+     * @return 合法的日期数
+     */
+    public static int parse(final byte[] bytes, final int offset, final int stride, final int count, final int[] result) {
+        if (bytes == null) {
+            throw new IllegalArgumentException("The bytes must not be null");
+        }
+        return parse(ByteBuffer.wrap(bytes), offset, stride, count, result);
+    }
+
+    /**
+     * 批量解析
+     *
+     * @param buffer 日期字节，offset是绝对位置，不受position影响
+     * @param offset 第一条记录的位置
+     * @param stride 每条记录的字节数，不小于10
+     * @param count  记录数
+     * @param result 解析结果，yyyyMMdd形式的数字，如20190215，不合法的日期为-1
+     * @return 合法的日期数
+     */
+    public static int parse(final ByteBuffer buffer, final int offset, final int stride, final int count, final int[] result) {
+        final ByteBuffer buf = checkBounds(buffer, offset, stride, count);
+        if (result == null || result.length < count) {
+            throw new IllegalArgumentException("The result must hold count elements");
+        }
+        int valid = 0;
+        for (int i = 0, p = offset; i < count; i++, p += stride) {
+            final int date = parse(buf, p);
+            result[i] = date;
+            if (date >= 0) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * 批量校验
+     *
+     * @param bytes  日期字节
+     * @param offset 第一条记录的位置
+     * @param stride 每条记录的字节数，不小于10
+     * @param count  记录数
+     * @param result 校验结果
+     * @return 合法的日期数
+     */
+    public static int isValid(final byte[] bytes, final int offset, final int stride, final int count, final boolean[] result) {
+        if (bytes == null) {
+            throw new IllegalArgumentException("The bytes must not be null");
+        }
+        return isValid(ByteBuffer.wrap(bytes), offset, stride, count, result);
+    }
+
+    /**
+     * 批量校验
+     *
+     * @param buffer 日期字节，offset是绝对位置，不受position影响
+     * @param offset 第一条记录的位置
+     * @param stride 每条记录的字节数，不小于10
+     * @param count  记录数
+     * @param result 校验结果
+     * @return 合法的日期数
+     */
+    public static int isValid(final ByteBuffer buffer, final int offset, final int stride, final int count, final boolean[] result) {
+        final ByteBuffer buf = checkBounds(buffer, offset, stride, count);
+        if (result == null || result.length < count) {
+            throw new IllegalArgumentException("The result must hold count elements");
+        }
+        int valid = 0;
+        for (int i = 0, p = offset; i < count; i++, p += stride) {
+            final boolean isValid = parse(buf, p) >= 0;
+            result[i] = isValid;
+            if (isValid) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * @return 按小端读取的buffer副本
+     */
+    private static ByteBuffer checkBounds(final ByteBuffer buffer, final int offset, final int stride, final int count) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("The buffer must not be null");
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("The offset must not be negative");
+        }
+        if (stride < RECORD_LENGTH) {
+            throw new IllegalArgumentException("The stride must not be less than " + RECORD_LENGTH);
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("The count must not be negative");
+        }
+        if (count > 0 && (long) offset + (long) (count - 1) * stride + RECORD_LENGTH > buffer.limit()) {
+            throw new IndexOutOfBoundsException("The records exceed the buffer limit");
+        }
+        return buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 解析一条记录
+     *
+     * @param buf 小端的buffer
+     * @param p   记录的位置
+     * @return yyyyMMdd，不合法为-1
+     */
+    private static int parse(final ByteBuffer buf, final int p) {
+        // yyyy-MM-，第0个字节在最低位
+        final long word = buf.getLong(p);
+        if ((word & SEPARATOR_MASK) != SEPARATORS) {
+            return -1;
+        }
+        // 分隔符位换成'0'再减，避免借位；数字位减完后都应在0-9之间
+        final long digits = (word | SEPARATOR_MASK) - (ZEROS | SEPARATOR_MASK);
+        if (((digits | (digits + 0x7676767676767676L)) & DIGIT_HIGH_BITS) != 0) {
+            return -1;
+        }
+        final int day1 = buf.get(p + 8) - '0';
+        final int day2 = buf.get(p + 9) - '0';
+        if (day1 < 0 || day1 > 9 || day2 < 0 || day2 > 9) {
+            return -1;
+        }
+        // 相邻两位合成两位数：第0、2个字节分别是年的前两位和后两位
+        final long pairs = digits * 10 + (digits >>> 8);
+        final int year = (int) (pairs & 0xFF) * 100 + (int) ((pairs >>> 16) & 0xFF);
+        final int month = (int) ((digits >>> 40) & 0xFF) * 10 + (int) ((digits >>> 48) & 0xFF);
+        final int day = day1 * 10 + day2;
+        if (year == 0 || month == 0 || month > 12 || day == 0 || day > lengthOfMonth(year, month)) {
+            return -1;
+        }
+        // 格里历从1582-10-15开始，之前的10天不存在
+        if (year == 1582 && month == 10 && day > 4 && day < 15) {
+            return -1;
+        }
+        return year * 10000 + month * 100 + day;
+    }
+
+    /**
+     * 和GregorianCalendar一样，1582年以前按儒略历判断闰年
+     */
+    private static int lengthOfMonth(final int year, final int month) {
+        if (month == 2 && year < 1582) {
+            return year % 4 == 0 ? 29 : 28;
+        }
+        return DateUtil.lengthOfMonth(year, month);
+    }
+}
@@ -0,0 +1,420 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * 用于Flow管道的日期转换处理器。
+ * <p>
+ * 上游元素按batchSize攒成批，每批交给executor并行转换，下游按上游的顺序收到结果。
+ * 有批在途（转换中或等待下游消费）时新元素继续攒批，没有批在途时立即提交，所以上游很慢时元素也不会被扣住。
+ * 最多有batchSize * maxBatches个元素在途，下游不request时不再向上游request，以此实现背压。
+ * <p>
+ * mapper返回null表示丢弃这个元素。需要和上游一一对应时，用format(String, String, Function, Executor)
+ * 指定不合法日期的输出，或用formatOptional。
+ * <pre>
+ *     DateFlowProcessor&lt;String, String&gt; p = DateFlowProcessor.format("yyyy/M/d", "yyyy-MM-dd", dateStr -&gt; dateStr, executor);
+ *     publisher.subscribe(p);
+ *     p.subscribe(subscriber);
+ * </pre>
+ *
+ * @param <T> 输入类型
+ * @param <R> 输出类型
+ */
+public class DateFlowProcessor<T, R> implements Flow.Processor<T, R> {
+    private final static int DEFAULT_BATCH_SIZE = 256;
+
+    private final Function<? super T, ? extends R> mapper;
+    private final Executor executor;
+    private final int batchSize;
+    private final int maxBatches;
+
+    private final ConcurrentLinkedQueue<Batch> batches = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Flow.Subscriber<? super R>> downstream = new AtomicReference<>();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile Flow.Subscription upstream;
+    private volatile boolean upstreamDone;
+    private volatile Throwable upstreamError;
+    private volatile boolean cancelled;
+    private volatile boolean badRequest;
+
+    /**
+     * 正在攒的批，由lock保护
+     */
+    private final Object lock = new Object();
+    private List<T> current;
+
+    /**
+     * 只在drain中访问
+     */
+    private boolean started;
+    private boolean terminated;
+
+    /**
+     * 使用ForkJoinPool.commonPool()和默认的批大小
+     *
+     * @param mapper 转换函数，必须是线程安全的
+     */
+    public DateFlowProcessor(final Function<? super T, ? extends R> mapper) {
+        this(mapper, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 使用默认的批大小，在途批数是CPU核数的2倍
+     *
+     * @param mapper   转换函数，必须是线程安全的
+     * @param executor 执行转换的线程池
+     */
+    public DateFlowProcessor(final Function<? super T, ? extends R> mapper, final Executor executor) {
+        this(mapper, executor, DEFAULT_BATCH_SIZE, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param mapper     转换函数，必须是线程安全的
+     * @param executor   执行转换的线程池
+     * @param batchSize  每批的元素数
+     * @param maxBatches 最多在途的批数
+     */
+    public DateFlowProcessor(final Function<? super T, ? extends R> mapper, final Executor executor,
+                             final int batchSize, final int maxBatches) {
+        if (mapper == null || executor == null) {
+            throw new IllegalArgumentException("The mapper and executor must not be null");
+        }
+        if (batchSize <= 0 || maxBatches <= 0) {
+            throw new IllegalArgumentException("The batchSize and maxBatches must be positive");
+        }
+        this.mapper = mapper;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.current = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * 对日期字符串格式化，见DateUtil.format(String, String, String)。
+     * 不合法的日期输出onInvalid的结果，如原样输出dateStr -&gt; dateStr，输出标记值dateStr -&gt; ""；
+     * onInvalid返回null时丢弃这个元素。
+     *
+     * @param inputPattern  输入的日期格式
+     * @param outputPattern 输出的日期格式
+     * @param onInvalid     不合法日期的输出，参数是原来的日期字符串
+     * @param executor      执行转换的线程池
+     * @return 处理器
+     */
+    public static DateFlowProcessor<String, String> format(final String inputPattern, final String outputPattern,
+                                                           final Function<? super String, String> onInvalid,
+                                                           final Executor executor) {
+        if (inputPattern == null || outputPattern == null || onInvalid == null) {
+            throw new IllegalArgumentException("The patterns and onInvalid must not be null");
+        }
+        return new DateFlowProcessor<>(dateStr -> {
+            final String result = DateUtil.format(dateStr, inputPattern, outputPattern);
+            return result != null ? result : onInvalid.apply(dateStr);
+        }, executor);
+    }
+
+    /**
+     * 对日期字符串格式化，见DateUtil.format(String, String, String)。和上游一一对应，不合法的日期输出Optional.empty()。
+     *
+     * @param inputPattern  输入的日期格式
+     * @param outputPattern 输出的日期格式
+     * @param executor      执行转换的线程池
+     * @return 处理器
+     */
+    public static DateFlowProcessor<String, Optional<String>> formatOptional(final String inputPattern,
+                                                                            final String outputPattern,
+                                                                            final Executor executor) {
+        if (inputPattern == null || outputPattern == null) {
+            throw new IllegalArgumentException("The patterns must not be null");
+        }
+        return new DateFlowProcessor<>(dateStr -> Optional.ofNullable(DateUtil.format(dateStr, inputPattern, outputPattern)), executor);
+    }
+
+    /**
+     * 校验日期字符串，见DateUtil.isValid(String, String)
+     *
+     * @param pattern  日期格式
+     * @param executor 执行校验的线程池
+     * @return 处理器
+     */
+    public static DateFlowProcessor<String, Boolean> isValid(final String pattern, final Executor executor) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("The pattern must not be null");
+        }
+        return new DateFlowProcessor<>(dateStr -> DateUtil.isValid(dateStr, pattern), executor);
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super R> subscriber) {
+        Objects.requireNonNull(subscriber);
+        if (!downstream.compareAndSet(null, subscriber)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("DateFlowProcessor supports only one subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    badRequest = true;
+                } else {
+                    requested.getAndAccumulate(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                Flow.Subscription s = upstream;
+                if (s != null) {
+                    s.cancel();
+                }
+                drain();
+            }
+        });
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription);
+        if (upstream != null || cancelled) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        drain();
+    }
+
+    @Override
+    public void onNext(final T item) {
+        Objects.requireNonNull(item);
+        if (upstreamDone || cancelled) {
+            return;
+        }
+        final Batch batch;
+        synchronized (lock) {
+            current.add(item);
+            if (current.size() < batchSize && !batches.isEmpty()) {
+                return;
+            }
+            batch = detachCurrent();
+        }
+        execute(batch);
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        Objects.requireNonNull(throwable);
+        if (upstreamDone) {
+            return;
+        }
+        flush();
+        upstreamError = throwable;
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        if (upstreamDone) {
+            return;
+        }
+        flush();
+        upstreamDone = true;
+        drain();
+    }
+
+    private void flush() {
+        final Batch batch;
+        synchronized (lock) {
+            if (current.isEmpty()) {
+                return;
+            }
+            batch = detachCurrent();
+        }
+        execute(batch);
+    }
+
+    /**
+     * 没有批在途时提交正在攒的批，否则攒着的元素要等到下一个元素到来才会提交
+     */
+    private void flushIfIdle() {
+        final Batch batch;
+        synchronized (lock) {
+            if (!batches.isEmpty() || current.isEmpty()) {
+                return;
+            }
+            batch = detachCurrent();
+        }
+        execute(batch);
+    }
+
+    /**
+     * 取下正在攒的批并按顺序排入队列，调用方需持有lock。
+     * 之后要在lock外调用execute：executor可能在当前线程执行（如CallerRunsPolicy），转换完会直接调用下游的onNext。
+     */
+    private Batch detachCurrent() {
+        final Batch batch = new Batch(current);
+        current = new ArrayList<>(batchSize);
+        batches.offer(batch);
+        return batch;
+    }
+
+    private void execute(final Batch batch) {
+        try {
+            executor.execute(() -> {
+                try {
+                    final List<T> items = batch.items;
+                    Object[] results = new Object[items.size()];
+                    for (int i = 0; i < results.length; i++) {
+                        results[i] = mapper.apply(items.get(i));
+                    }
+                    batch.results = results;
+                } catch (Throwable t) {
+                    batch.error = t;
+                }
+                batch.items = null;
+                batch.done = true;
+                drain();
+            });
+        } catch (RejectedExecutionException e) {
+            batch.items = null;
+            batch.error = e;
+            batch.done = true;
+            drain();
+        }
+    }
+
+    /**
+     * 按顺序把已完成的批发给下游。同一时刻只有一个线程在执行。
+     */
+    @SuppressWarnings("unchecked")
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        for (; ; ) {
+            Flow.Subscriber<? super R> d = downstream.get();
+            if (d != null && !terminated) {
+                if (!started && upstream != null && !cancelled) {
+                    started = true;
+                    upstream.request((long) batchSize * maxBatches);
+                }
+                long r = requested.get();
+                long e = 0L;
+                for (; ; ) {
+                    if (cancelled) {
+                        terminated = true;
+                        batches.clear();
+                        break;
+                    }
+                    if (badRequest) {
+                        fail(d, new IllegalArgumentException("The request amount must be positive"));
+                        break;
+                    }
+                    boolean done = upstreamDone;
+                    Batch b = batches.peek();
+                    if (b == null) {
+                        if (done) {
+                            terminated = true;
+                            Throwable t = upstreamError;
+                            if (t != null) {
+                                d.onError(t);
+                            } else {
+                                d.onComplete();
+                            }
+                        }
+                        break;
+                    }
+                    if (!b.done) {
+                        break;
+                    }
+                    if (b.error != null) {
+                        fail(d, b.error);
+                        break;
+                    }
+                    Object[] results = b.results;
+                    while (b.index < results.length && !cancelled) {
+                        Object v = results[b.index];
+                        if (v == null) {
+                            b.index++;
+                            continue;
+                        }
+                        if (e == r) {
+                            break;
+                        }
+                        b.index++;
+                        e++;
+                        d.onNext((R) v);
+                    }
+                    if (b.index < results.length) {
+                        if (cancelled) {
+                            continue;
+                        }
+                        break;
+                    }
+                    batches.poll();
+                    if (!upstreamDone) {
+                        upstream.request(results.length);
+                    }
+                    flushIfIdle();
+                }
+                if (e != 0L && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-e);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                break;
+            }
+        }
+    }
+
+    private void fail(final Flow.Subscriber<? super R> d, final Throwable t) {
+        terminated = true;
+        cancelled = true;
+        batches.clear();
+        Flow.Subscription s = upstream;
+        if (s != null) {
+            s.cancel();
+        }
+        d.onError(t);
+    }
+
+    /**
+     * 一批元素及其转换结果
+     */
+    private final class Batch {
+        List<T> items;
+        volatile boolean done;
+        Object[] results;
+        Throwable error;
+        int index;
+
+        Batch(final List<T> items) {
+            this.items = items;
+        }
+    }
+}
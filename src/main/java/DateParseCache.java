@@ -0,0 +1,180 @@
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 日期字符串解析结果的缓存，key是(pattern, 日期字符串)，value是解析出的毫秒数或“不合法”。
+ * <p>
+ * 日志、流水等数据里同一个日期字符串会重复出现很多次，开启后DateUtil里按字符串解析日期的方法都会先查缓存。
+ * <pre>
+ *     DateUtil.setParseCache(new DateParseCache(4096));
+ *     ...
+ *     DateUtil.getParseCache().getHitRatio();
+ * </pre>
+ * 缓存是定长的数组，每个key只可能放在相邻的2个槽里，满了直接覆盖，查找和淘汰都是O(1)，不加锁。
+ * 解析结果和时区、Locale有关，所以条目会记下解析时的时区和Locale，运行期修改默认时区或默认Locale后旧条目不再命中。
+ */
+public class DateParseCache {
+    private final AtomicReferenceArray<Entry> table;
+    private final int mask;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param maxSize 最多缓存的条数，向上取为2的幂
+     */
+    public DateParseCache(final int maxSize) {
+        if (maxSize <= 0 || maxSize > (1 << 30)) {
+            throw new IllegalArgumentException("The maxSize must be between 1 and 2^30");
+        }
+        final int capacity = Math.max(2, Integer.highestOneBit(maxSize - 1) << 1);
+        this.table = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * 命中次数
+     *
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * 未命中次数
+     *
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * 被覆盖的条数
+     *
+     * @return 被覆盖的条数
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * 命中率，还没有查询过时返回0
+     *
+     * @return 命中率
+     */
+    public double getHitRatio() {
+        final long hits = hitCount.sum();
+        final long total = hits + missCount.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * 清空缓存和统计
+     */
+    public void clear() {
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, null);
+        }
+        hitCount.reset();
+        missCount.reset();
+        evictionCount.reset();
+    }
+
+    /**
+     * 解析日期字符串，先查缓存，未命中时用df解析并放入缓存。
+     *
+     * @param df      pattern对应的日期格式
+     * @param pattern 日期格式
+     * @param dateStr 日期字符串
+     * @param zoneId  df的时区
+     * @param locale  df的Locale
+     * @return 日期
+     * @throws ParseException 不合法的日期，包括缓存里记录为不合法的
+     */
+    Date parse(final DateFormat df, final String pattern, final String dateStr, final String zoneId,
+               final Locale locale) throws ParseException {
+        final int hash = spread(pattern.hashCode() * 31 + dateStr.hashCode());
+        final int index = hash & mask;
+        Entry entry = table.get(index);
+        if (entry == null || !entry.matches(hash, pattern, dateStr, zoneId, locale)) {
+            entry = table.get(index ^ 1);
+        }
+        if (entry != null && entry.matches(hash, pattern, dateStr, zoneId, locale)) {
+            hitCount.increment();
+            if (entry.errorIndex >= 0) {
+                throw unparseable(dateStr, entry.errorIndex);
+            }
+            return new Date(entry.millis);
+        }
+        missCount.increment();
+        // 和DateFormat.parse(String)一样，只是记下出错的位置
+        final ParsePosition pos = new ParsePosition(0);
+        final Date date = df.parse(dateStr, pos);
+        if (date == null) {
+            put(index, hash, new Entry(hash, pattern, dateStr, zoneId, locale, 0, pos.getErrorIndex()));
+            throw unparseable(dateStr, pos.getErrorIndex());
+        }
+        put(index, hash, new Entry(hash, pattern, dateStr, zoneId, locale, date.getTime(), -1));
+        return date;
+    }
+
+    /**
+     * 优先放入空槽，否则按hash的另一位选一个覆盖
+     */
+    private void put(final int index, final int hash, final Entry entry) {
+        int slot = index;
+        if (table.get(slot) != null) {
+            slot = index ^ 1;
+            if (table.get(slot) != null) {
+                slot = (hash & (mask + 1)) == 0 ? index : index ^ 1;
+                evictionCount.increment();
+            }
+        }
+        table.set(slot, entry);
+    }
+
+    private static ParseException unparseable(final String dateStr, final int errorIndex) {
+        return new ParseException("Unparseable date: \"" + dateStr + "\"", errorIndex);
+    }
+
+    private static int spread(final int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Entry {
+        final int hash;
+        final String pattern;
+        final String dateStr;
+        final String zoneId;
+        final Locale locale;
+        final long millis;
+        /**
+         * 不合法时是出错的位置，合法时是-1
+         */
+        final int errorIndex;
+
+        Entry(final int hash, final String pattern, final String dateStr, final String zoneId, final Locale locale,
+              final long millis, final int errorIndex) {
+            this.hash = hash;
+            this.pattern = pattern;
+            this.dateStr = dateStr;
+            this.zoneId = zoneId;
+            this.locale = locale;
+            this.millis = millis;
+            this.errorIndex = errorIndex;
+        }
+
+        boolean matches(final int hash, final String pattern, final String dateStr, final String zoneId,
+                        final Locale locale) {
+            return this.hash == hash && this.dateStr.equals(dateStr) && this.pattern.equals(pattern)
+                    && this.zoneId.equals(zoneId) && this.locale.equals(locale);
+        }
+    }
+}
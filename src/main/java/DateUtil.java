@@ -5,6 +5,10 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
 
 /*
 思路1：方法开头是都对参数的合法性判断
@@ -20,6 +24,25 @@ import java.util.Date;
 public class DateUtil {
     private final static String DEFAULT_DATE_FORMAT = "yyyy-MM-dd";
 
+    private final static long MILLIS_PER_MINUTE = 60 * 1000L;
+    private final static long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+    private final static long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+    /**
+     * 每个线程最多缓存的日期格式数，超过时淘汰最久没用的
+     */
+    private final static int MAX_CACHED_FORMATS = 32;
+
+    /**
+     * 按线程缓存的日期格式和Calendar。SimpleDateFormat、Calendar都不是线程安全的，所以每个线程各自一份。
+     */
+    private final static ThreadLocal<ThreadCache> THREAD_CACHES = ThreadLocal.withInitial(ThreadCache::new);
+
+    /**
+     * 解析结果的缓存，为null时不缓存。见setParseCache(DateParseCache)
+     */
+    private static volatile DateParseCache parseCache;
+
     public DateUtil() {
 
     }
@@ -40,7 +63,7 @@ public class DateUtil {
         if (date == null) {
             throw new IllegalArgumentException("The date must not be null");
         }
-        final Calendar c = Calendar.getInstance();
+        final Calendar c = getCalendar();
         c.setTime(date);
         c.add(calendarField, amount);
         return c.getTime();
@@ -63,15 +86,15 @@ public class DateUtil {
         if (dateStr == null || pattern == null) {
             throw new IllegalArgumentException("The dateStr and pattern must not be null");
         }
-        DateFormat df = new SimpleDateFormat(pattern);
+        DateFormat df = getDateFormat(pattern);
         Date date;
         try {
-            date = df.parse(dateStr);
+            date = parse(dateStr, pattern);
         } catch (ParseException e) {
             e.printStackTrace();
             return null;
         }
-        final Calendar c = Calendar.getInstance();
+        final Calendar c = getCalendar();
         c.setTime(date);
         c.add(calendarField, amount);
         return df.format(c.getTime());
@@ -142,9 +165,9 @@ public class DateUtil {
         if (dateStr1 == null || pattern1 == null || dateStr2 == null || pattern2 == null) {
             throw new IllegalArgumentException("The dateStrs and patterns must not be null");
         }
-        DateFormat df1 = new SimpleDateFormat(pattern1);
-        DateFormat df2 = new SimpleDateFormat(pattern2);
-        return compare(df1.parse(dateStr1), df2.parse(dateStr2));
+        Date date1 = parse(dateStr1, pattern1);
+        Date date2 = parse(dateStr2, pattern2);
+        return compare(date1, date2);
     }
 
     /**
@@ -187,8 +210,7 @@ public class DateUtil {
         if (compareDateStr == null || startDateStr == null || endDateStr == null || pattern == null) {
             throw new IllegalArgumentException("The dateStrs and patterns must not be null");
         }
-        DateFormat df = new SimpleDateFormat(pattern);
-        return isBetween(df.parse(compareDateStr), df.parse(startDateStr), df.parse(endDateStr));
+        return isBetween(parse(compareDateStr, pattern), parse(startDateStr, pattern), parse(endDateStr, pattern));
     }
 
     /**
@@ -212,8 +234,7 @@ public class DateUtil {
         if (date == null || pattern == null) {
             throw new IllegalArgumentException("The date and pattern must not be null");
         }
-        DateFormat df = new SimpleDateFormat(pattern);
-        return df.format(date);
+        return getDateFormat(pattern).format(date);
     }
 
     /**
@@ -231,10 +252,9 @@ public class DateUtil {
         if (dateStr == null || inputPattern == null || outputPattern == null) {
             throw new IllegalArgumentException("The dateStr and pattern must not be null");
         }
-        DateFormat inputDF = new SimpleDateFormat(inputPattern);
-        DateFormat outputDF = new SimpleDateFormat(outputPattern);
         try {
-            return outputDF.format(inputDF.parse(dateStr));
+            Date date = parse(dateStr, inputPattern);
+            return getDateFormat(outputPattern).format(date);
         } catch (ParseException e) {
             e.printStackTrace();
             return null;
@@ -264,8 +284,7 @@ public class DateUtil {
         if (pattern == null) {
             throw new IllegalArgumentException("The pattern must not be null");
         }
-        SimpleDateFormat sdf = new SimpleDateFormat(pattern);
-        sdf.setLenient(false);
+        DateFormat sdf = getStrictDateFormat(pattern);
         try {
             sdf.parse(dataStr);
         } catch (ParseException e) {
@@ -294,7 +313,7 @@ public class DateUtil {
         if (date == null) {
             throw new IllegalArgumentException("The date must not be null");
         }
-        Calendar calendar = Calendar.getInstance();
+        Calendar calendar = getCalendar();
         calendar.setTime(date);
         return (calendar.get(Calendar.DAY_OF_WEEK) - 1) == 0 ? 7 : (calendar.get(Calendar.DAY_OF_WEEK) - 1);
     }
@@ -363,7 +382,7 @@ public class DateUtil {
         if (date == null) {
             throw new IllegalArgumentException("The date must not be null");
         }
-        final Calendar ca = Calendar.getInstance();
+        final Calendar ca = getCalendar();
         ca.setTime(date);
         ca.add(Calendar.MONTH, n);
         ca.set(Calendar.DAY_OF_MONTH, 1);
@@ -385,15 +404,15 @@ public class DateUtil {
         if (dateStr == null || pattern == null) {
             throw new IllegalArgumentException("The dateStr and pattern must not be null");
         }
-        DateFormat df = new SimpleDateFormat(pattern);
+        DateFormat df = getDateFormat(pattern);
         Date date;
         try {
-            date = df.parse(dateStr);
+            date = parse(dateStr, pattern);
         } catch (ParseException e) {
             e.printStackTrace();
             return null;
         }
-        final Calendar ca = Calendar.getInstance();
+        final Calendar ca = getCalendar();
         ca.setTime(date);
         ca.add(Calendar.MONTH, n);
         ca.set(Calendar.DAY_OF_MONTH, 1);
@@ -463,7 +482,7 @@ public class DateUtil {
         if (date == null) {
             throw new IllegalArgumentException("The date must not be null");
         }
-        final Calendar ca = Calendar.getInstance();
+        final Calendar ca = getCalendar();
         ca.setTime(date);
         ca.add(Calendar.MONTH, n);
         ca.set(Calendar.DAY_OF_MONTH, ca.getActualMaximum(Calendar.DAY_OF_MONTH));
@@ -485,15 +504,15 @@ public class DateUtil {
         if (dateStr == null || pattern == null) {
             throw new IllegalArgumentException("The dateStr and pattern must not be null");
         }
-        DateFormat df = new SimpleDateFormat(pattern);
+        DateFormat df = getDateFormat(pattern);
         Date date;
         try {
-            date = df.parse(dateStr);
+            date = parse(dateStr, pattern);
         } catch (ParseException e) {
             e.printStackTrace();
             return null;
         }
-        final Calendar ca = Calendar.getInstance();
+        final Calendar ca = getCalendar();
         ca.setTime(date);
         ca.add(Calendar.MONTH, n);
         ca.set(Calendar.DAY_OF_MONTH, ca.getActualMaximum(Calendar.DAY_OF_MONTH));
@@ -578,7 +597,7 @@ public class DateUtil {
         if (date == null) {
             throw new IllegalArgumentException("The date must not be null");
         }
-        final Calendar ca = Calendar.getInstance();
+        final Calendar ca = getCalendar();
         ca.setTime(date);
         ca.add(Calendar.YEAR, n);
         ca.set(Calendar.MONTH, 0);
@@ -601,15 +620,15 @@ public class DateUtil {
         if (dateStr == null || pattern == null) {
             throw new IllegalArgumentException("The dateStr and pattern must not be null");
         }
-        DateFormat df = new SimpleDateFormat(pattern);
+        DateFormat df = getDateFormat(pattern);
         Date date;
         try {
-            date = df.parse(dateStr);
+            date = parse(dateStr, pattern);
         } catch (ParseException e) {
             e.printStackTrace();
             return null;
         }
-        final Calendar ca = Calendar.getInstance();
+        final Calendar ca = getCalendar();
         ca.setTime(date);
         ca.add(Calendar.YEAR, n);
         ca.set(Calendar.MONTH, 0);
@@ -683,7 +702,7 @@ public class DateUtil {
         if (date == null) {
             throw new IllegalArgumentException("The date must not be null");
         }
-        final Calendar ca = Calendar.getInstance();
+        final Calendar ca = getCalendar();
         ca.setTime(date);
         ca.add(Calendar.YEAR, n);
         ca.set(Calendar.MONTH, 11);
@@ -706,15 +725,15 @@ public class DateUtil {
         if (dateStr == null || pattern == null) {
             throw new IllegalArgumentException("The dateStr and pattern must not be null");
         }
-        DateFormat df = new SimpleDateFormat(pattern);
+        DateFormat df = getDateFormat(pattern);
         Date date;
         try {
-            date = df.parse(dateStr);
+            date = parse(dateStr, pattern);
         } catch (ParseException e) {
             e.printStackTrace();
             return null;
         }
-        final Calendar ca = Calendar.getInstance();
+        final Calendar ca = getCalendar();
         ca.setTime(date);
         ca.add(Calendar.YEAR, n);
         ca.set(Calendar.MONTH, 11);
@@ -734,13 +753,21 @@ public class DateUtil {
         if (date1 == null || date2 == null) {
             throw new IllegalArgumentException("The date must not be null");
         }
-        Calendar c1 = Calendar.getInstance();
-        Calendar c2 = Calendar.getInstance();
-        c1.setTime(date1);
-        c2.setTime(date2);
-        int years = c2.get(Calendar.YEAR) - c1.get(Calendar.YEAR);
-        int months = c2.get(Calendar.MONTH) - c1.get(Calendar.MONTH);
-        return Math.abs(12 * years + months) + 1;
+        return getMonthDiff(date1, date2, true);
+    }
+
+    /**
+     * 获取2个日期的月份差。
+     * isInclusive为false时，返回date1到date2之间完整的月数，date2早于date1时为负数，如1月31日到2月28日是0个月；
+     * isInclusive为true时，和getMonthDiff(Date, Date)一样，返回2个日期跨越的月数（含首尾），总是正数。
+     *
+     * @param date1       日期1
+     * @param date2       日期2
+     * @param isInclusive 是否含首尾
+     * @return 月份差
+     */
+    public static int getMonthDiff(final Date date1, final Date date2, final boolean isInclusive) {
+        return (int) getDiff(date1, date2, Calendar.MONTH, isInclusive);
     }
 
     /**
@@ -769,8 +796,146 @@ public class DateUtil {
         if (dateStr1 == null || dateStr2 == null || pattern == null) {
             throw new IllegalArgumentException("The date must not be null");
         }
-        DateFormat sdf = new SimpleDateFormat(pattern);
-        return getMonthDiff(sdf.parse(dateStr1), sdf.parse(dateStr2));
+        return getMonthDiff(parse(dateStr1, pattern), parse(dateStr2, pattern));
+    }
+
+    /**
+     * 获取2个日期的年份差。没有只有2个参数的版本，因为getMonthDiff(Date, Date)默认含首尾，容易混淆。
+     * isInclusive为false时返回完整的年数，date2早于date1时为负数；
+     * 为true时返回2个日期跨越的年数（含首尾），同一年返回1。
+     *
+     * @param date1       日期1
+     * @param date2       日期2
+     * @param isInclusive 是否含首尾
+     * @return 年份差
+     */
+    public static int getYearDiff(final Date date1, final Date date2, final boolean isInclusive) {
+        return (int) getDiff(date1, date2, Calendar.YEAR, isInclusive);
+    }
+
+    /**
+     * 获取2个日期的周数差。isInclusive为false时返回完整的周数，date2早于date1时为负数；
+     * 为true时返回2个日期跨越的周数（含首尾，周一为一周的第一天），同一周返回1。
+     *
+     * @param date1       日期1
+     * @param date2       日期2
+     * @param isInclusive 是否含首尾
+     * @return 周数差
+     */
+    public static long getWeekDiff(final Date date1, final Date date2, final boolean isInclusive) {
+        return getDiff(date1, date2, Calendar.WEEK_OF_YEAR, isInclusive);
+    }
+
+    /**
+     * 获取2个日期的天数差。isInclusive为false时返回完整的天数，date2早于date1时为负数，按本地时间计算，夏令时切换的那天也算1天；
+     * 为true时返回2个日期跨越的天数（含首尾），同一天返回1。
+     *
+     * @param date1       日期1
+     * @param date2       日期2
+     * @param isInclusive 是否含首尾
+     * @return 天数差
+     */
+    public static long getDayDiff(final Date date1, final Date date2, final boolean isInclusive) {
+        return getDiff(date1, date2, Calendar.DATE, isInclusive);
+    }
+
+    /**
+     * 获取2个日期的小时差。isInclusive为false时返回实际经过的小时数，date2早于date1时为负数；
+     * 为true时返回2个日期跨越的本地小时数（含首尾），同一小时返回1。
+     *
+     * @param date1       日期1
+     * @param date2       日期2
+     * @param isInclusive 是否含首尾
+     * @return 小时差
+     */
+    public static long getHourDiff(final Date date1, final Date date2, final boolean isInclusive) {
+        return getDiff(date1, date2, Calendar.HOUR_OF_DAY, isInclusive);
+    }
+
+    /**
+     * 获取2个日期的分钟差。isInclusive为false时返回实际经过的分钟数，date2早于date1时为负数；
+     * 为true时返回2个日期跨越的本地分钟数（含首尾），同一分钟返回1。
+     *
+     * @param date1       日期1
+     * @param date2       日期2
+     * @param isInclusive 是否含首尾
+     * @return 分钟差
+     */
+    public static long getMinuteDiff(final Date date1, final Date date2, final boolean isInclusive) {
+        return getDiff(date1, date2, Calendar.MINUTE, isInclusive);
+    }
+
+    /**
+     * 求2个日期差的统一方法，不经过Calendar，直接由毫秒数和默认时区的偏移量算出。
+     * <pre>
+     *     DateUtil.getDiff(date1, date2, Calendar.DATE, false);
+     *     DateUtil.getDiff(date1, date2, Calendar.MONTH, true);
+     * </pre>
+     * isInclusive为false时返回date1到date2之间完整的时间段数，date2早于date1时为负数；
+     * 为true时返回2个日期跨越的时间段数（含首尾），总是正数，同getMonthDiff(Date, Date)。
+     * 年、月、周、天按本地日期计算；小时、分钟不含首尾时是实际经过的时间，不受夏令时影响。
+     * 日期按公历推算，对1582年以前的日期和Calendar的结果可能不同。
+     *
+     * @param date1         日期1
+     * @param date2         日期2
+     * @param calendarField 取值于Calendar.YEAR, Calendar.MONTH, Calendar.WEEK_OF_YEAR, Calendar.DATE,
+     *                      Calendar.HOUR_OF_DAY(Calendar.HOUR), Calendar.MINUTE
+     * @param isInclusive   是否含首尾
+     * @return 日期差
+     */
+    public static long getDiff(final Date date1, final Date date2, final int calendarField, final boolean isInclusive) {
+        if (date1 == null || date2 == null) {
+            throw new IllegalArgumentException("The date must not be null");
+        }
+        checkDiffField(calendarField);
+        return diff(TimeZone.getDefault(), date1.getTime(), date2.getTime(), calendarField, isInclusive);
+    }
+
+    /**
+     * 批量求日期差，适合按列处理。result[i] = getDiff(new Date(millis1[i]), new Date(millis2[i]), calendarField, isInclusive)
+     *
+     * @param millis1       日期1的毫秒数
+     * @param millis2       日期2的毫秒数，长度和millis1相同
+     * @param calendarField 同getDiff(Date, Date, int, boolean)
+     * @param isInclusive   是否含首尾
+     * @return 日期差
+     */
+    public static long[] getDiff(final long[] millis1, final long[] millis2, final int calendarField, final boolean isInclusive) {
+        if (millis1 == null || millis2 == null) {
+            throw new IllegalArgumentException("The millis must not be null");
+        }
+        if (millis1.length != millis2.length) {
+            throw new IllegalArgumentException("The millis must have the same length");
+        }
+        checkDiffField(calendarField);
+        final TimeZone zone = TimeZone.getDefault();
+        final long[] result = new long[millis1.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = diff(zone, millis1[i], millis2[i], calendarField, isInclusive);
+        }
+        return result;
+    }
+
+    /**
+     * 设置日期字符串解析结果的缓存，传入null则关闭缓存。默认不缓存。
+     * 开启后按字符串解析日期的方法（如compare、isBetween、add、format）都会先查缓存，isValid除外。
+     * <pre>
+     *     DateUtil.setParseCache(new DateParseCache(4096));
+     * </pre>
+     *
+     * @param cache 缓存
+     */
+    public static void setParseCache(final DateParseCache cache) {
+        parseCache = cache;
+    }
+
+    /**
+     * 获取日期字符串解析结果的缓存，可用于查看命中率
+     *
+     * @return 缓存，没有开启时返回null
+     */
+    public static DateParseCache getParseCache() {
+        return parseCache;
     }
 
     /**
@@ -792,5 +957,267 @@ public class DateUtil {
         return format(new Date(), dataFormat);
     }
 
+    private static void checkDiffField(final int calendarField) {
+        switch (calendarField) {
+            case Calendar.YEAR:
+            case Calendar.MONTH:
+            case Calendar.WEEK_OF_YEAR:
+            case Calendar.DATE:
+            case Calendar.HOUR:
+            case Calendar.HOUR_OF_DAY:
+            case Calendar.MINUTE:
+                return;
+            default:
+                throw new IllegalArgumentException("Unsupported calendarField: " + calendarField);
+        }
+    }
+
+    private static long diff(final TimeZone zone, final long millis1, final long millis2, final int calendarField, final boolean isInclusive) {
+        final long local1 = millis1 + zone.getOffset(millis1);
+        final long local2 = millis2 + zone.getOffset(millis2);
+        switch (calendarField) {
+            case Calendar.MINUTE:
+                if (isInclusive) {
+                    return Math.abs(Math.floorDiv(local2, MILLIS_PER_MINUTE) - Math.floorDiv(local1, MILLIS_PER_MINUTE)) + 1;
+                }
+                return (millis2 - millis1) / MILLIS_PER_MINUTE;
+            case Calendar.HOUR:
+            case Calendar.HOUR_OF_DAY:
+                if (isInclusive) {
+                    return Math.abs(Math.floorDiv(local2, MILLIS_PER_HOUR) - Math.floorDiv(local1, MILLIS_PER_HOUR)) + 1;
+                }
+                return (millis2 - millis1) / MILLIS_PER_HOUR;
+            case Calendar.DATE:
+                if (isInclusive) {
+                    return Math.abs(Math.floorDiv(local2, MILLIS_PER_DAY) - Math.floorDiv(local1, MILLIS_PER_DAY)) + 1;
+                }
+                return (local2 - local1) / MILLIS_PER_DAY;
+            case Calendar.WEEK_OF_YEAR:
+                if (isInclusive) {
+                    return Math.abs(weekIndex(local2) - weekIndex(local1)) + 1;
+                }
+                return (local2 - local1) / MILLIS_PER_DAY / 7;
+            default:
+                break;
+        }
+        final long day1 = Math.floorDiv(local1, MILLIS_PER_DAY);
+        long day2 = Math.floorDiv(local2, MILLIS_PER_DAY);
+        if (isInclusive) {
+            final long date1 = civilDate(day1);
+            final long date2 = civilDate(day2);
+            if (calendarField == Calendar.YEAR) {
+                return Math.abs(Math.floorDiv(date2, 10000) - Math.floorDiv(date1, 10000)) + 1;
+            }
+            return Math.abs(monthIndex(date2) - monthIndex(date1)) + 1;
+        }
+        // 最后一天的时分秒不足时，这一天不算完整
+        final long time1 = Math.floorMod(local1, MILLIS_PER_DAY);
+        final long time2 = Math.floorMod(local2, MILLIS_PER_DAY);
+        if (day2 > day1 && time2 < time1) {
+            day2--;
+        } else if (day2 < day1 && time2 > time1) {
+            day2++;
+        }
+        final long date1 = civilDate(day1);
+        final long date2 = civilDate(day2);
+        final long months = ((monthIndex(date2) * 32 + Math.floorMod(date2, 100))
+                - (monthIndex(date1) * 32 + Math.floorMod(date1, 100))) / 32;
+        return calendarField == Calendar.YEAR ? months / 12 : months;
+    }
+
+    /**
+     * 周序号，周一为一周的第一天
+     */
+    private static long weekIndex(final long localMillis) {
+        return Math.floorDiv(Math.floorDiv(localMillis, MILLIS_PER_DAY) + 3, 7);
+    }
+
+    private static long monthIndex(final long civilDate) {
+        return Math.floorDiv(civilDate, 10000) * 12 + Math.floorMod(Math.floorDiv(civilDate, 100), 100) - 1;
+    }
+
+    /**
+     * 把1970-01-01起的天数换算为公历日期，返回yyyyMMdd形式的数字，如20190215。
+     * 算法见 http://howardhinnant.github.io/date_algorithms.html
+     *
+     * @param epochDay 1970-01-01起的天数
+     * @return yyyyMMdd
+     */
+    static long civilDate(final long epochDay) {
+        final long z = epochDay + 719468;
+        final long era = Math.floorDiv(z, 146097);
+        final long doe = z - era * 146097;
+        final long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        final long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        final long mp = (5 * doy + 2) / 153;
+        final long day = doy - (153 * mp + 2) / 5 + 1;
+        final long month = mp < 10 ? mp + 3 : mp - 9;
+        final long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    /**
+     * 把公历日期换算为1970-01-01起的天数，是civilDate的逆运算。
+     *
+     * @param year  年
+     * @param month 月，1-12
+     * @param day   日
+     * @return 1970-01-01起的天数
+     */
+    static long epochDay(final long year, final int month, final int day) {
+        final long y = month <= 2 ? year - 1 : year;
+        final long era = Math.floorDiv(y, 400);
+        final long yoe = y - era * 400;
+        final long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * 公历某月的天数
+     *
+     * @param year  年
+     * @param month 月，1-12
+     * @return 天数
+     */
+    static int lengthOfMonth(final long year, final int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        }
+        return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+    }
+
+    /**
+     * 把本地时间的毫秒数换算为UTC毫秒数，和Calendar一样：
+     * 夏令时开始时不存在的本地时间按切换前的偏移量换算，结束时重复的本地时间取较晚的那个。
+     *
+     * @param zone        时区
+     * @param localMillis 本地时间的毫秒数
+     * @return UTC毫秒数
+     */
+    static long toUtcMillis(final TimeZone zone, final long localMillis) {
+        final long guess = localMillis - zone.getOffset(localMillis);
+        final int offsetBefore = zone.getOffset(guess - 6 * MILLIS_PER_HOUR);
+        final int offsetAfter = zone.getOffset(guess + 6 * MILLIS_PER_HOUR);
+        final long before = localMillis - offsetBefore;
+        final long after = localMillis - offsetAfter;
+        final boolean isBeforeValid = zone.getOffset(before) == offsetBefore;
+        final boolean isAfterValid = zone.getOffset(after) == offsetAfter;
+        if (isBeforeValid && isAfterValid) {
+            return Math.max(before, after);
+        }
+        return isAfterValid ? after : before;
+    }
+
+    /**
+     * 按pattern解析日期字符串，开启了解析缓存时先查缓存。
+     *
+     * @param dateStr 日期字符串
+     * @param pattern 日期格式
+     * @return 日期
+     * @throws ParseException 不合法的日期
+     */
+    private static Date parse(final String dateStr, final String pattern) throws ParseException {
+        final DateParseCache cache = parseCache;
+        if (cache == null) {
+            return getDateFormat(pattern).parse(dateStr);
+        }
+        final ThreadCache threadCache = getThreadCache();
+        return cache.parse(threadCache.getFormat(pattern, false), pattern, dateStr, threadCache.zone.getID(), threadCache.locale);
+    }
+
+    /**
+     * 获取当前线程缓存的日期格式，没有则创建。
+     *
+     * @param pattern 日期格式
+     * @return 日期格式
+     */
+    private static DateFormat getDateFormat(final String pattern) {
+        return getThreadCache().getFormat(pattern, false);
+    }
+
+    /**
+     * 获取当前线程缓存的严格（不宽容）日期格式，没有则创建。
+     *
+     * @param pattern 日期格式
+     * @return 日期格式
+     */
+    private static DateFormat getStrictDateFormat(final String pattern) {
+        return getThreadCache().getFormat(pattern, true);
+    }
+
+    /**
+     * 获取当前线程复用的Calendar，调用方需要先setTime。
+     *
+     * @return Calendar
+     */
+    private static Calendar getCalendar() {
+        return getThreadCache().getCalendar();
+    }
+
+    /**
+     * 获取当前线程的缓存。默认时区或默认Locale变了时，先清空这个线程原来的缓存。
+     *
+     * @return 当前线程的缓存
+     */
+    private static ThreadCache getThreadCache() {
+        final ThreadCache cache = THREAD_CACHES.get();
+        cache.check(TimeZone.getDefault(), Locale.getDefault(Locale.Category.FORMAT));
+        return cache;
+    }
+
+    /**
+     * 一个线程的日期格式和Calendar，都按创建时的默认时区、默认Locale
+     */
+    private static final class ThreadCache {
+        private final Map<String, SimpleDateFormat> formats = newFormatMap();
+        private final Map<String, SimpleDateFormat> strictFormats = newFormatMap();
+        private Calendar calendar;
+        private TimeZone zone;
+        private Locale locale;
+
+        void check(final TimeZone zone, final Locale locale) {
+            if (this.zone != null && this.zone.getID().equals(zone.getID()) && this.zone.hasSameRules(zone)
+                    && this.locale.equals(locale)) {
+                return;
+            }
+            formats.clear();
+            strictFormats.clear();
+            calendar = null;
+            this.zone = zone;
+            this.locale = locale;
+        }
+
+        DateFormat getFormat(final String pattern, final boolean isStrict) {
+            final Map<String, SimpleDateFormat> map = isStrict ? strictFormats : formats;
+            SimpleDateFormat sdf = map.get(pattern);
+            if (sdf == null) {
+                sdf = new SimpleDateFormat(pattern, locale);
+                sdf.setTimeZone(zone);
+                sdf.setLenient(!isStrict);
+                map.put(pattern, sdf);
+            }
+            return sdf;
+        }
+
+        Calendar getCalendar() {
+            if (calendar == null) {
+                calendar = Calendar.getInstance(zone, locale);
+            }
+            return calendar;
+        }
+
+        /**
+         * 按访问顺序淘汰的定长Map
+         */
+        private static Map<String, SimpleDateFormat> newFormatMap() {
+            return new LinkedHashMap<String, SimpleDateFormat>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, SimpleDateFormat> eldest) {
+                    return size() > MAX_CACHED_FORMATS;
+                }
+            };
+        }
+    }
 
 }
@@ -0,0 +1,417 @@
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TimeZone;
+
+/**
+ * 周期任务的触发时间表。
+ * <p>
+ * 每条规则按锚点日期编译成按月推算的生成器，第k次触发和DateUtil的对应方法结果相同，如
+ * Rule.firstDayOfMonth(n)的第k次触发是DateUtil.getFirstDayOfNextMonth(anchor, k * n)，k从1开始。
+ * 所有规则按下一次触发时间放在一个优先队列里，查询下一次触发是O(1)，每次触发后只推算这条规则的下一次，是O(log n)。
+ * <pre>
+ *     RecurrenceSchedule&lt;String&gt; schedule = new RecurrenceSchedule&lt;&gt;();
+ *     schedule.add("report", RecurrenceSchedule.Rule.lastDayOfMonth(1), new Date());
+ *     schedule.add("archive", RecurrenceSchedule.Rule.firstDayOfYear(1, true), new Date());
+ *     for (RecurrenceSchedule.Occurrence&lt;String&gt; o : schedule.pollUntil(new Date(), 1000)) {
+ *         ...
+ *     }
+ * </pre>
+ * 日期按公历推算，不适用于1582年以前的日期。
+ *
+ * @param <K> 规则的标识
+ */
+public class RecurrenceSchedule<K> {
+    private final static long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+    private final TimeZone zone;
+    private final PriorityQueue<Entry<K>> queue = new PriorityQueue<>();
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    private long sequence;
+    private int removedCount;
+
+    /**
+     * 使用默认时区
+     */
+    public RecurrenceSchedule() {
+        this(TimeZone.getDefault());
+    }
+
+    /**
+     * @param zone 计算日期所用的时区
+     */
+    public RecurrenceSchedule(final TimeZone zone) {
+        if (zone == null) {
+            throw new IllegalArgumentException("The zone must not be null");
+        }
+        this.zone = (TimeZone) zone.clone();
+    }
+
+    /**
+     * 添加规则，id已存在时替换原来的规则。第一次触发是锚点日期之后的第1个周期。
+     *
+     * @param id     规则的标识
+     * @param rule   规则
+     * @param anchor 锚点日期
+     */
+    public synchronized void add(final K id, final Rule rule, final Date anchor) {
+        if (id == null || rule == null || anchor == null) {
+            throw new IllegalArgumentException("The id, rule and anchor must not be null");
+        }
+        remove(id);
+        final long local = anchor.getTime() + zone.getOffset(anchor.getTime());
+        final long civilDate = DateUtil.civilDate(Math.floorDiv(local, MILLIS_PER_DAY));
+        final long year = Math.floorDiv(civilDate, 10000);
+        final long baseMonth;
+        if (rule.month < 0) {
+            baseMonth = year * 12 + Math.floorMod(Math.floorDiv(civilDate, 100), 100) - 1;
+        } else {
+            baseMonth = year * 12 + rule.month;
+        }
+        final long timeOfDay = rule.isTruncate ? 0 : Math.floorMod(local, MILLIS_PER_DAY);
+        final Entry<K> entry = new Entry<>(id, baseMonth, rule.stepMonths, rule.isLastDay, timeOfDay, sequence++);
+        advance(entry);
+        entries.put(id, entry);
+        queue.offer(entry);
+    }
+
+    /**
+     * 删除规则
+     *
+     * @param id 规则的标识
+     * @return 规则是否存在
+     */
+    public synchronized boolean remove(final K id) {
+        final Entry<K> entry = entries.remove(id);
+        if (entry == null) {
+            return false;
+        }
+        // 延迟删除，队列里的废弃项太多时再清理
+        entry.removed = true;
+        removedCount++;
+        if (removedCount > entries.size()) {
+            queue.removeIf(e -> e.removed);
+            removedCount = 0;
+        }
+        return true;
+    }
+
+    /**
+     * 规则的数量
+     *
+     * @return 规则的数量
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 获取规则的下一次触发时间
+     *
+     * @param id 规则的标识
+     * @return 下一次触发时间，规则不存在时返回null
+     */
+    public synchronized Date getNextTime(final K id) {
+        final Entry<K> entry = entries.get(id);
+        return entry == null ? null : new Date(entry.next);
+    }
+
+    /**
+     * 查看最早的下一次触发，不推进规则
+     *
+     * @return 最早的下一次触发，没有规则时返回null
+     */
+    public synchronized Occurrence<K> peek() {
+        final Entry<K> head = head();
+        return head == null ? null : new Occurrence<>(head.id, head.next);
+    }
+
+    /**
+     * 取出最早的下一次触发，并把这条规则推进到再下一次
+     *
+     * @return 最早的下一次触发，没有规则时返回null
+     */
+    public synchronized Occurrence<K> poll() {
+        final Entry<K> head = head();
+        if (head == null) {
+            return null;
+        }
+        final Occurrence<K> occurrence = new Occurrence<>(head.id, head.next);
+        queue.poll();
+        advance(head);
+        queue.offer(head);
+        return occurrence;
+    }
+
+    /**
+     * 取出不晚于指定时间的触发，按时间顺序排列，最多limit个。落后多个周期的规则会触发多次。
+     *
+     * @param time  截止时间
+     * @param limit 最多取出几个
+     * @return 触发列表
+     */
+    public synchronized List<Occurrence<K>> pollUntil(final Date time, final int limit) {
+        checkUntil(time, limit);
+        final List<Occurrence<K>> result = new ArrayList<>();
+        Entry<K> head;
+        while (result.size() < limit && (head = head()) != null && head.next <= time.getTime()) {
+            result.add(poll());
+        }
+        return result;
+    }
+
+    /**
+     * 查看不晚于指定时间的触发，按时间顺序排列，最多limit个，不推进规则。
+     * 只展开要返回的那些触发，耗时是O((limit + 涉及的规则数) * log n)。
+     *
+     * @param time  截止时间
+     * @param limit 最多返回几个
+     * @return 触发列表
+     */
+    public synchronized List<Occurrence<K>> peekUntil(final Date time, final int limit) {
+        checkUntil(time, limit);
+        final List<Occurrence<K>> result = new ArrayList<>();
+        // 从队列里暂时取出的规则，和它们推进后的副本
+        final List<Entry<K>> taken = new ArrayList<>();
+        final PriorityQueue<Entry<K>> copies = new PriorityQueue<>();
+        while (result.size() < limit) {
+            final Entry<K> head = head();
+            final Entry<K> copy = copies.peek();
+            final Entry<K> next;
+            if (copy == null || (head != null && head.compareTo(copy) < 0)) {
+                if (head == null || head.next > time.getTime()) {
+                    break;
+                }
+                taken.add(queue.poll());
+                next = head.copy();
+            } else {
+                if (copy.next > time.getTime()) {
+                    break;
+                }
+                next = copies.poll();
+            }
+            result.add(new Occurrence<>(next.id, next.next));
+            advance(next);
+            copies.offer(next);
+        }
+        queue.addAll(taken);
+        return result;
+    }
+
+    private static void checkUntil(final Date time, final int limit) {
+        if (time == null) {
+            throw new IllegalArgumentException("The time must not be null");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("The limit must not be negative");
+        }
+    }
+
+    private Entry<K> head() {
+        Entry<K> head;
+        while ((head = queue.peek()) != null && head.removed) {
+            queue.poll();
+            removedCount--;
+        }
+        return head;
+    }
+
+    /**
+     * 推算规则的下一次触发时间
+     */
+    private void advance(final Entry<K> entry) {
+        entry.count++;
+        final long month = entry.baseMonth + entry.count * entry.stepMonths;
+        final long year = Math.floorDiv(month, 12);
+        final int monthOfYear = Math.floorMod(month, 12) + 1;
+        final int day = entry.isLastDay ? DateUtil.lengthOfMonth(year, monthOfYear) : 1;
+        final long local = DateUtil.epochDay(year, monthOfYear, day) * MILLIS_PER_DAY + entry.timeOfDay;
+        entry.next = DateUtil.toUtcMillis(zone, local);
+    }
+
+    /**
+     * 周期规则
+     */
+    public static final class Rule {
+        private final int stepMonths;
+        private final int month;
+        private final boolean isLastDay;
+        private final boolean isTruncate;
+
+        private Rule(final int stepMonths, final int month, final boolean isLastDay, final boolean isTruncate) {
+            this.stepMonths = stepMonths;
+            this.month = month;
+            this.isLastDay = isLastDay;
+            this.isTruncate = isTruncate;
+        }
+
+        /**
+         * 每n个月的第一天，时分秒不置空。见DateUtil.getFirstDayOfNextMonth(Date, int)
+         *
+         * @param n 间隔几个月
+         * @return 规则
+         */
+        public static Rule firstDayOfMonth(final int n) {
+            return firstDayOfMonth(n, false);
+        }
+
+        /**
+         * 每n个月的第一天。见DateUtil.getFirstDayOfNextMonth(Date, int, boolean)
+         *
+         * @param n          间隔几个月
+         * @param isTruncate 是否截断
+         * @return 规则
+         */
+        public static Rule firstDayOfMonth(final int n, final boolean isTruncate) {
+            checkStep(n);
+            return new Rule(n, -1, false, isTruncate);
+        }
+
+        /**
+         * 每n个月的最后一天，时分秒不置空。见DateUtil.getLastDayOfNextMonth(Date, int)
+         *
+         * @param n 间隔几个月
+         * @return 规则
+         */
+        public static Rule lastDayOfMonth(final int n) {
+            return lastDayOfMonth(n, false);
+        }
+
+        /**
+         * 每n个月的最后一天。见DateUtil.getLastDayOfNextMonth(Date, int, boolean)
+         *
+         * @param n          间隔几个月
+         * @param isTruncate 是否截断
+         * @return 规则
+         */
+        public static Rule lastDayOfMonth(final int n, final boolean isTruncate) {
+            checkStep(n);
+            return new Rule(n, -1, true, isTruncate);
+        }
+
+        /**
+         * 每n年的第一天，时分秒不置空。见DateUtil.getFirstDayOfNextYear(Date, int)
+         *
+         * @param n 间隔几年
+         * @return 规则
+         */
+        public static Rule firstDayOfYear(final int n) {
+            return firstDayOfYear(n, false);
+        }
+
+        /**
+         * 每n年的第一天。见DateUtil.getFirstDayOfNextYear(Date, int, boolean)
+         *
+         * @param n          间隔几年
+         * @param isTruncate 是否截断
+         * @return 规则
+         */
+        public static Rule firstDayOfYear(final int n, final boolean isTruncate) {
+            checkStep(n);
+            return new Rule(12 * n, 0, false, isTruncate);
+        }
+
+        /**
+         * 每n年的最后一天，时分秒不置空。见DateUtil.getLastDayOfNextYear(Date, int, boolean)
+         *
+         * @param n 间隔几年
+         * @return 规则
+         */
+        public static Rule lastDayOfYear(final int n) {
+            return lastDayOfYear(n, false);
+        }
+
+        /**
+         * 每n年的最后一天。见DateUtil.getLastDayOfNextYear(Date, int, boolean)
+         *
+         * @param n          间隔几年
+         * @param isTruncate 是否截断
+         * @return 规则
+         */
+        public static Rule lastDayOfYear(final int n, final boolean isTruncate) {
+            checkStep(n);
+            return new Rule(12 * n, 11, true, isTruncate);
+        }
+
+        private static void checkStep(final int n) {
+            if (n <= 0 || n > Integer.MAX_VALUE / 12) {
+                throw new IllegalArgumentException("The n must be positive");
+            }
+        }
+    }
+
+    /**
+     * 一次触发
+     *
+     * @param <K> 规则的标识
+     */
+    public static final class Occurrence<K> {
+        private final K id;
+        private final long time;
+
+        private Occurrence(final K id, final long time) {
+            this.id = id;
+            this.time = time;
+        }
+
+        /**
+         * @return 规则的标识
+         */
+        public K getId() {
+            return id;
+        }
+
+        /**
+         * @return 触发时间
+         */
+        public Date getDate() {
+            return new Date(time);
+        }
+    }
+
+    /**
+     * 规则编译后的生成器，同时是优先队列的元素
+     */
+    private static final class Entry<K> implements Comparable<Entry<K>> {
+        final K id;
+        final long baseMonth;
+        final long stepMonths;
+        final boolean isLastDay;
+        final long timeOfDay;
+        final long sequence;
+        long count;
+        long next;
+        boolean removed;
+
+        Entry(final K id, final long baseMonth, final long stepMonths, final boolean isLastDay,
+              final long timeOfDay, final long sequence) {
+            this.id = id;
+            this.baseMonth = baseMonth;
+            this.stepMonths = stepMonths;
+            this.isLastDay = isLastDay;
+            this.timeOfDay = timeOfDay;
+            this.sequence = sequence;
+        }
+
+        /**
+         * @return 状态相同的副本，用于只读的展开
+         */
+        Entry<K> copy() {
+            final Entry<K> copy = new Entry<>(id, baseMonth, stepMonths, isLastDay, timeOfDay, sequence);
+            copy.count = count;
+            copy.next = next;
+            return copy;
+        }
+
+        @Override
+        public int compareTo(final Entry<K> o) {
+            if (next != o.next) {
+                return next < o.next ? -1 : 1;
+            }
+            return Long.compare(sequence, o.sequence);
+        }
+    }
+}
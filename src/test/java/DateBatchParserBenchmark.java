@@ -0,0 +1,129 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * DateBatchParser.isValid、逐字节校验和DateUtil.isValid(String, String)的对比，输出每条记录的耗时。
+ * <p>
+ * 不是单元测试，mvn test不会运行。编译后手动运行：
+ * <pre>
+ *     mvn test-compile
+ *     java -cp target/classes:target/test-classes DateBatchParserBenchmark [记录数]
+ * </pre>
+ * 数据是随机的yyyy-MM-dd，年份1500-1699，日1-31，约有2%不合法；每条记录10个字节，紧密排列。
+ * 前几轮是预热，只打印后面几轮。DateUtil.isValid很慢，只取前SLOW_COUNT条。
+ */
+public class DateBatchParserBenchmark {
+    private final static int RECORD_LENGTH = 10;
+    private final static int WARMUP_ROUNDS = 5;
+    private final static int ROUNDS = 3;
+    private final static int SLOW_COUNT = 200000;
+
+    private static long sink;
+
+    public static void main(final String[] args) {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        final Random random = new Random(1);
+        final byte[] bytes = new byte[count * RECORD_LENGTH];
+        final String[] dates = new String[count];
+        for (int i = 0; i < count; i++) {
+            dates[i] = String.format("%04d-%02d-%02d", 1500 + random.nextInt(200), 1 + random.nextInt(12), 1 + random.nextInt(31));
+            System.arraycopy(dates[i].getBytes(StandardCharsets.US_ASCII), 0, bytes, i * RECORD_LENGTH, RECORD_LENGTH);
+        }
+        final boolean[] batch = new boolean[count];
+        final boolean[] scalar = new boolean[count];
+
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            final long t0 = System.nanoTime();
+            sink += DateBatchParser.isValid(bytes, 0, RECORD_LENGTH, count, batch);
+            final long t1 = System.nanoTime();
+            sink += isValidScalar(bytes, 0, RECORD_LENGTH, count, scalar);
+            final long t2 = System.nanoTime();
+            if (round >= WARMUP_ROUNDS) {
+                System.out.printf("DateBatchParser.isValid %6.1f ns/record    scalar loop %6.1f ns/record%n",
+                        (t1 - t0) / (double) count, (t2 - t1) / (double) count);
+            }
+        }
+
+        // DateUtil.isValid对不合法的日期会打印堆栈，计时时不输出
+        final int slowCount = Math.min(count, SLOW_COUNT);
+        final boolean[] slow = new boolean[slowCount];
+        final PrintStream err = System.err;
+        System.setErr(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        final long t0 = System.nanoTime();
+        try {
+            for (int i = 0; i < slowCount; i++) {
+                slow[i] = DateUtil.isValid(dates[i], "yyyy-MM-dd");
+            }
+        } finally {
+            System.setErr(err);
+        }
+        System.out.printf("DateUtil.isValid        %6.1f ns/record (%d records)%n",
+                (System.nanoTime() - t0) / (double) slowCount, slowCount);
+
+        for (int i = 0; i < count; i++) {
+            if (batch[i] != scalar[i] || i < slowCount && batch[i] != slow[i]) {
+                throw new IllegalStateException("Results differ for " + dates[i]);
+            }
+        }
+        System.out.println("results agree, sink " + sink);
+    }
+
+    /**
+     * 逐字节校验，规则和DateBatchParser相同
+     */
+    private static int isValidScalar(final byte[] bytes, final int offset, final int stride, final int count,
+                                     final boolean[] result) {
+        int valid = 0;
+        for (int i = 0, p = offset; i < count; i++, p += stride) {
+            boolean isValid = bytes[p + 4] == '-' && bytes[p + 7] == '-';
+            int year = 0;
+            int month = 0;
+            int day = 0;
+            for (int k = 0; k < RECORD_LENGTH && isValid; k++) {
+                if (k == 4 || k == 7) {
+                    continue;
+                }
+                final int digit = bytes[p + k] - '0';
+                if (digit < 0 || digit > 9) {
+                    isValid = false;
+                } else if (k < 4) {
+                    year = year * 10 + digit;
+                } else if (k < 7) {
+                    month = month * 10 + digit;
+                } else {
+                    day = day * 10 + digit;
+                }
+            }
+            if (isValid) {
+                isValid = year > 0 && month >= 1 && month <= 12 && day >= 1 && day <= lengthOfMonth(year, month)
+                        && !(year == 1582 && month == 10 && day > 4 && day < 15);
+            }
+            result[i] = isValid;
+            if (isValid) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    private static int lengthOfMonth(final int year, final int month) {
+        switch (month) {
+            case 2:
+                final boolean isLeap = year < 1582 ? year % 4 == 0 : year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+                return isLeap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * DateFlowProcessor的顺序、背压和一一对应
+ */
+public class DateFlowProcessorTest {
+    private final static long TIMEOUT_SECONDS = 30;
+
+    @Test
+    public void sameThreadExecutorEmitsEachItemOnce() throws InterruptedException {
+        final List<String> items = strings(20);
+        assertEquals(items, collect(new DateFlowProcessor<>(s -> s, Runnable::run, 4, 2), items));
+    }
+
+    @Test
+    public void callerRunsPolicyEmitsEachItemOnceInOrder() throws InterruptedException {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            final List<String> items = strings(20000);
+            assertEquals(items, collect(new DateFlowProcessor<>(s -> s, executor, 16, 4), items));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void keepsOrderAcrossBatches() throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Integer> items = new ArrayList<>();
+            final List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < 20000; i++) {
+                items.add(i);
+                expected.add(i * 2);
+            }
+            assertEquals(expected, collect(new DateFlowProcessor<Integer, Integer>(i -> i * 2, executor, 16, 4), items));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void boundsUpstreamDemandWhileDownstreamRequestsNothing() {
+        final int batchSize = 8;
+        final int maxBatches = 3;
+        final DateFlowProcessor<String, String> processor = new DateFlowProcessor<>(s -> s, Runnable::run, batchSize, maxBatches);
+        final AtomicLong upstreamRequested = new AtomicLong();
+        processor.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                upstreamRequested.addAndGet(n);
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        final CollectingSubscriber<String> subscriber = new CollectingSubscriber<>(0);
+        processor.subscribe(subscriber);
+        assertEquals(batchSize * maxBatches, upstreamRequested.get());
+
+        for (String item : strings(batchSize * maxBatches)) {
+            processor.onNext(item);
+        }
+        assertEquals(batchSize * maxBatches, upstreamRequested.get());
+        assertTrue(subscriber.items.isEmpty());
+
+        subscriber.request(5);
+        assertEquals(5, subscriber.items.size());
+        assertTrue(upstreamRequested.get() - subscriber.items.size() <= batchSize * maxBatches);
+    }
+
+    @Test
+    public void requestZeroSignalsIllegalArgumentException() throws InterruptedException {
+        final DateFlowProcessor<String, String> processor = new DateFlowProcessor<>(s -> s, Runnable::run, 4, 2);
+        final CollectingSubscriber<String> subscriber = new CollectingSubscriber<>(0);
+        processor.subscribe(subscriber);
+        subscriber.request(0);
+        assertTrue(subscriber.done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void formatKeepsInvalidDatesOneToOne() throws InterruptedException {
+        final List<String> items = Arrays.asList("2019-02-15", "bad", "2019-03-01", "x");
+        assertEquals(Arrays.asList("2019/02/15", "bad", "2019/03/01", "x"),
+                collect(DateFlowProcessor.format("yyyy-MM-dd", "yyyy/MM/dd", s -> s, Runnable::run), items));
+        assertEquals(Arrays.asList("2019/02/15", "", "2019/03/01", ""),
+                collect(DateFlowProcessor.format("yyyy-MM-dd", "yyyy/MM/dd", s -> "", Runnable::run), items));
+    }
+
+    @Test
+    public void formatOptionalKeepsInvalidDatesOneToOne() throws InterruptedException {
+        final List<String> items = Arrays.asList("2019-02-15", "bad", "2019-03-01", "x");
+        assertEquals(Arrays.asList(Optional.of("2019/02/15"), Optional.empty(), Optional.of("2019/03/01"), Optional.empty()),
+                collect(DateFlowProcessor.formatOptional("yyyy-MM-dd", "yyyy/MM/dd", Runnable::run), items));
+    }
+
+    private static List<String> strings(final int count) {
+        final List<String> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add("x" + i);
+        }
+        return items;
+    }
+
+    /**
+     * 用SubmissionPublisher发送items，返回下游收到的全部元素
+     */
+    private static <T, R> List<R> collect(final DateFlowProcessor<T, R> processor, final List<T> items)
+            throws InterruptedException {
+        final CollectingSubscriber<R> subscriber = new CollectingSubscriber<>(Long.MAX_VALUE);
+        processor.subscribe(subscriber);
+        try (SubmissionPublisher<T> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(processor);
+            for (T item : items) {
+                publisher.submit(item);
+            }
+        }
+        assertTrue("Timed out", subscriber.done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNull(subscriber.error);
+        return subscriber.items;
+    }
+
+    private static final class CollectingSubscriber<T> implements Flow.Subscriber<T> {
+        final List<T> items = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Throwable error;
+        private final long initialRequest;
+        private volatile Flow.Subscription subscription;
+
+        CollectingSubscriber(final long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        void request(final long n) {
+            subscription.request(n);
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(final T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+}
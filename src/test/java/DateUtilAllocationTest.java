@@ -0,0 +1,299 @@
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 每次调用分配的字节数不能超过allocation-budgets.properties里的预算。
+ * <p>
+ * 用ThreadMXBean.getThreadAllocatedBytes统计当前线程的分配量，先预热，再取几轮的最小值。
+ * 预算在实测值上留的余量小于一个SimpleDateFormat或Calendar的大小，
+ * 所以热路径上重新出现new SimpleDateFormat、Calendar.getInstance()时测试会失败。
+ * 用-Dallocation.report=true运行时打印实测值，方便调整预算。
+ */
+@RunWith(Enclosed.class)
+public class DateUtilAllocationTest {
+    private final static String BUDGETS = "/allocation-budgets.properties";
+
+    private final static Date DATE1 = new Date(1550200000000L);
+    private final static Date DATE2 = new Date(1567300000000L);
+    private final static Date DATE3 = new Date(1560000000000L);
+
+    private static TimeZone defaultZone;
+    private static Locale defaultLocale;
+
+    /**
+     * 被测的调用，返回值防止被JIT优化掉
+     */
+    interface Call {
+        Object call() throws Exception;
+    }
+
+    /**
+     * key是方法签名，可以带#说明走的是哪条快速路径
+     */
+    static Map<String, Call> cases() {
+        final Map<String, Call> cases = new LinkedHashMap<>();
+        cases.put("add(Date,int,int)", () -> DateUtil.add(DATE1, Calendar.DATE, 5));
+        cases.put("add(String,String,int,int)", () -> DateUtil.add("2019-02-15", "yyyy-MM-dd", Calendar.DATE, 5));
+        cases.put("compare(Date,Date)", () -> DateUtil.compare(DATE1, DATE2));
+        cases.put("compare(String,String)", () -> DateUtil.compare("2019-02-15", "2019-09-01"));
+        cases.put("compare(String,String,String)", () -> DateUtil.compare("2019/02/15", "2019/09/01", "yyyy/MM/dd"));
+        cases.put("compare(String,String,String,String)", () -> DateUtil.compare("2019-02-15", "yyyy-MM-dd", "2019/09/01", "yyyy/MM/dd"));
+        cases.put("isBetween(Date,Date,Date)", () -> DateUtil.isBetween(DATE3, DATE1, DATE2));
+        cases.put("isBetween(String,String,String)", () -> DateUtil.isBetween("2019-06-01", "2019-02-15", "2019-09-01"));
+        cases.put("isBetween(String,String,String,String)", () -> DateUtil.isBetween("2019/06/01", "2019/02/15", "2019/09/01", "yyyy/MM/dd"));
+        cases.put("format(Date)", () -> DateUtil.format(DATE1));
+        cases.put("format(Date,String)", () -> DateUtil.format(DATE1, "yyyy/MM/dd HH:mm:ss"));
+        cases.put("format(String,String,String)", () -> DateUtil.format("2019-02-15", "yyyy-MM-dd", "dd/MM/yyyy"));
+        cases.put("isValid(String)", () -> DateUtil.isValid("2019-02-15"));
+        cases.put("isValid(String,String)", () -> DateUtil.isValid("2019/02/15", "yyyy/MM/dd"));
+        cases.put("getDayOfWeek()", DateUtil::getDayOfWeek);
+        cases.put("getDayOfWeek(Date)", () -> DateUtil.getDayOfWeek(DATE1));
+        cases.put("getFirstDayOfMonth(Date)", () -> DateUtil.getFirstDayOfMonth(DATE1));
+        cases.put("getFirstDayOfMonth(Date,boolean)", () -> DateUtil.getFirstDayOfMonth(DATE1, true));
+        cases.put("getFirstDayOfMonth(String,String)", () -> DateUtil.getFirstDayOfMonth("2019-02-15", "yyyy-MM-dd"));
+        cases.put("getFirstDayOfNextMonth(Date)", () -> DateUtil.getFirstDayOfNextMonth(DATE1));
+        cases.put("getFirstDayOfNextMonth(Date,int)", () -> DateUtil.getFirstDayOfNextMonth(DATE1, 3));
+        cases.put("getFirstDayOfNextMonth(Date,int,boolean)", () -> DateUtil.getFirstDayOfNextMonth(DATE1, 3, true));
+        cases.put("getFirstDayOfNextMonth(String,String,int)", () -> DateUtil.getFirstDayOfNextMonth("2019-02-15", "yyyy-MM-dd", 3));
+        cases.put("getLastDayOfMonth(Date)", () -> DateUtil.getLastDayOfMonth(DATE1));
+        cases.put("getLastDayOfMonth(Date,boolean)", () -> DateUtil.getLastDayOfMonth(DATE1, true));
+        cases.put("getLastDayOfMonth(String,String)", () -> DateUtil.getLastDayOfMonth("2019-02-15", "yyyy-MM-dd"));
+        cases.put("getLastDayOfNextMonth(Date)", () -> DateUtil.getLastDayOfNextMonth(DATE1));
+        cases.put("getLastDayOfNextMonth(Date,int)", () -> DateUtil.getLastDayOfNextMonth(DATE1, 3));
+        cases.put("getLastDayOfNextMonth(Date,int,boolean)", () -> DateUtil.getLastDayOfNextMonth(DATE1, 3, true));
+        cases.put("getLastDayOfNextMonth(String,String,int)", () -> DateUtil.getLastDayOfNextMonth("2019-02-15", "yyyy-MM-dd", 3));
+        cases.put("getFirstDayByYear(String)", () -> DateUtil.getFirstDayByYear("2019"));
+        cases.put("getFirstDayOfYear(Date)", () -> DateUtil.getFirstDayOfYear(DATE1));
+        cases.put("getFirstDayOfYear(Date,boolean)", () -> DateUtil.getFirstDayOfYear(DATE1, true));
+        cases.put("getFirstDayOfYear(String,String)", () -> DateUtil.getFirstDayOfYear("2019-02-15", "yyyy-MM-dd"));
+        cases.put("getFirstDayOfNextYear(Date)", () -> DateUtil.getFirstDayOfNextYear(DATE1));
+        cases.put("getFirstDayOfNextYear(Date,int)", () -> DateUtil.getFirstDayOfNextYear(DATE1, 2));
+        cases.put("getFirstDayOfNextYear(Date,int,boolean)", () -> DateUtil.getFirstDayOfNextYear(DATE1, 2, true));
+        cases.put("getFirstDayOfNextYear(String,String,int)", () -> DateUtil.getFirstDayOfNextYear("2019-02-15", "yyyy-MM-dd", 2));
+        cases.put("getLastDayByYear(String)", () -> DateUtil.getLastDayByYear("2019"));
+        cases.put("getLastDayOfYear(Date)", () -> DateUtil.getLastDayOfYear(DATE1));
+        cases.put("getLastDayOfYear(Date,boolean)", () -> DateUtil.getLastDayOfYear(DATE1, true));
+        cases.put("getLastDayOfYear(String,String)", () -> DateUtil.getLastDayOfYear("2019-02-15", "yyyy-MM-dd"));
+        cases.put("getLastDayOfNextYear(Date)", () -> DateUtil.getLastDayOfNextYear(DATE1));
+        cases.put("getLastDayOfNextYear(Date,int,boolean)", () -> DateUtil.getLastDayOfNextYear(DATE1, 2, true));
+        cases.put("getLastDayOfNextYear(String,String,int)", () -> DateUtil.getLastDayOfNextYear("2019-02-15", "yyyy-MM-dd", 2));
+        cases.put("getMonthDiff(Date,Date)", () -> DateUtil.getMonthDiff(DATE1, DATE2));
+        cases.put("getMonthDiff(Date,Date,boolean)", () -> DateUtil.getMonthDiff(DATE1, DATE2, false));
+        cases.put("getMonthDiff(String,String)", () -> DateUtil.getMonthDiff("2019-02-15", "2019-09-01"));
+        cases.put("getMonthDiff(String,String,String)", () -> DateUtil.getMonthDiff("2019/02/15", "2019/09/01", "yyyy/MM/dd"));
+        cases.put("getYearDiff(Date,Date,boolean)", () -> DateUtil.getYearDiff(DATE1, DATE2, false));
+        cases.put("getWeekDiff(Date,Date,boolean)", () -> DateUtil.getWeekDiff(DATE1, DATE2, false));
+        cases.put("getDayDiff(Date,Date,boolean)", () -> DateUtil.getDayDiff(DATE1, DATE2, true));
+        cases.put("getHourDiff(Date,Date,boolean)", () -> DateUtil.getHourDiff(DATE1, DATE2, false));
+        cases.put("getMinuteDiff(Date,Date,boolean)", () -> DateUtil.getMinuteDiff(DATE1, DATE2, false));
+        cases.put("getDiff(Date,Date,int,boolean)", () -> DateUtil.getDiff(DATE1, DATE2, Calendar.MONTH, false));
+        cases.put("getSysDateStr()", DateUtil::getSysDateStr);
+        cases.put("getSysDateStr(String)", () -> DateUtil.getSysDateStr("yyyy/MM/dd"));
+        cases.put("getParseCache()", DateUtil::getParseCache);
+        cases.put("setParseCache(DateParseCache)", () -> {
+            DateUtil.setParseCache(null);
+            return null;
+        });
+
+        // 带缓存的pattern：同一线程里反复使用多个pattern
+        cases.put("format(Date,String)#cachedPatterns", new Call() {
+            private final String[] patterns = {"yyyy-MM-dd", "yyyy/MM/dd", "dd/MM/yyyy", "yyyyMMdd", "yyyy-MM-dd HH:mm:ss"};
+            private int i;
+
+            @Override
+            public Object call() {
+                return DateUtil.format(DATE1, patterns[i++ % patterns.length]);
+            }
+        });
+        // 开启解析缓存后，重复的日期字符串不再解析
+        cases.put("compare(String,String)#parseCache", () -> DateUtil.compare("2019-02-15", "2019-09-01"));
+        cases.put("isBetween(String,String,String)#parseCache", () -> DateUtil.isBetween("2019-06-01", "2019-02-15", "2019-09-01"));
+        cases.put("add(String,String,int,int)#parseCache", () -> DateUtil.add("2019-02-15", "yyyy-MM-dd", Calendar.DATE, 5));
+        cases.put("format(String,String,String)#parseCache", () -> DateUtil.format("2019-02-15", "yyyy-MM-dd", "dd/MM/yyyy"));
+
+        // 批量接口，每次调用处理1024条
+        final long[] millis1 = new long[1024];
+        final long[] millis2 = new long[1024];
+        for (int i = 0; i < millis1.length; i++) {
+            millis1[i] = DATE1.getTime() + i * 3600000L;
+            millis2[i] = DATE2.getTime() - i * 60000L;
+        }
+        cases.put("getDiff(long[],long[],int,boolean)", () -> DateUtil.getDiff(millis1, millis2, Calendar.DATE, false));
+        final byte[] bytes = new byte[1024 * 10];
+        for (int i = 0; i < 1024; i++) {
+            System.arraycopy(String.format("2019-%02d-%02d", 1 + i % 12, 1 + i % 28).getBytes(StandardCharsets.US_ASCII), 0, bytes, i * 10, 10);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+        final int[] dates = new int[1024];
+        final boolean[] valid = new boolean[1024];
+        cases.put("parse(byte[],int,int,int,int[])", () -> DateBatchParser.parse(bytes, 0, 10, 1024, dates));
+        cases.put("parse(ByteBuffer,int,int,int,int[])", () -> DateBatchParser.parse(buffer, 0, 10, 1024, dates));
+        cases.put("isValid(byte[],int,int,int,boolean[])", () -> DateBatchParser.isValid(bytes, 0, 10, 1024, valid));
+        cases.put("isValid(ByteBuffer,int,int,int,boolean[])", () -> DateBatchParser.isValid(buffer, 0, 10, 1024, valid));
+        return cases;
+    }
+
+    static void useFixedDefaults() {
+        defaultZone = TimeZone.getDefault();
+        defaultLocale = Locale.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Shanghai"));
+        Locale.setDefault(Locale.CHINA);
+    }
+
+    static void restoreDefaults() {
+        TimeZone.setDefault(defaultZone);
+        Locale.setDefault(defaultLocale);
+    }
+
+    /**
+     * 检查每个预算
+     */
+    @RunWith(Parameterized.class)
+    public static class Budgets {
+        private final static int WARMUP = 20000;
+        private final static int ITERATIONS = 2000;
+        private final static int ROUNDS = 5;
+
+        private final static com.sun.management.ThreadMXBean THREADS =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        private static volatile Object sink;
+        private static Properties budgets;
+
+        private final String name;
+        private final Call call;
+
+        public Budgets(final String name, final Call call) {
+            this.name = name;
+            this.call = call;
+        }
+
+        @Parameterized.Parameters(name = "{0}")
+        public static List<Object[]> parameters() {
+            final List<Object[]> parameters = new ArrayList<>();
+            for (Map.Entry<String, Call> entry : cases().entrySet()) {
+                parameters.add(new Object[]{entry.getKey(), entry.getValue()});
+            }
+            return parameters;
+        }
+
+        @BeforeClass
+        public static void setUp() throws IOException {
+            useFixedDefaults();
+            budgets = loadBudgets();
+        }
+
+        @AfterClass
+        public static void tearDown() {
+            DateUtil.setParseCache(null);
+            restoreDefaults();
+        }
+
+        @Test
+        public void allocationWithinBudget() throws Exception {
+            final String budget = budgets.getProperty(name);
+            assertNotNull("No allocation budget for " + name + " in " + BUDGETS, budget);
+            DateUtil.setParseCache(name.endsWith("#parseCache") ? new DateParseCache(1024) : null);
+            try {
+                final long allocated = allocatedBytesPerCall(call);
+                if (Boolean.getBoolean("allocation.report")) {
+                    System.out.println(name + "=" + allocated);
+                }
+                assertTrue(name + " allocates " + allocated + " bytes per call, budget is " + budget,
+                        allocated <= Long.parseLong(budget.trim()));
+            } finally {
+                DateUtil.setParseCache(null);
+            }
+        }
+
+        private static long allocatedBytesPerCall(final Call call) throws Exception {
+            final long threadId = Thread.currentThread().getId();
+            for (int i = 0; i < WARMUP; i++) {
+                sink = call.call();
+            }
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                final long before = THREADS.getThreadAllocatedBytes(threadId);
+                for (int i = 0; i < ITERATIONS; i++) {
+                    sink = call.call();
+                }
+                final long after = THREADS.getThreadAllocatedBytes(threadId);
+                best = Math.min(best, (after - before) / ITERATIONS);
+            }
+            return best;
+        }
+    }
+
+    /**
+     * 每个公开方法都要有对应的预算
+     */
+    public static class Coverage {
+
+        @Test
+        public void everyPublicMethodHasABudget() throws IOException {
+            final Properties budgets = loadBudgets();
+            final TreeSet<String> covered = new TreeSet<>();
+            for (String name : cases().keySet()) {
+                covered.add(name.contains("#") ? name.substring(0, name.indexOf('#')) : name);
+            }
+            final TreeSet<String> missing = new TreeSet<>();
+            for (Class<?> type : new Class<?>[]{DateUtil.class, DateBatchParser.class}) {
+                for (Method method : type.getDeclaredMethods()) {
+                    if (Modifier.isPublic(method.getModifiers()) && !covered.contains(signature(method))) {
+                        missing.add(type.getSimpleName() + "." + signature(method));
+                    }
+                }
+            }
+            assertTrue("No allocation check for " + missing, missing.isEmpty());
+            final TreeSet<String> unused = new TreeSet<>(budgets.stringPropertyNames());
+            unused.removeAll(cases().keySet());
+            assertTrue("Budgets without an allocation check: " + unused, unused.isEmpty());
+        }
+
+        private static String signature(final Method method) {
+            final StringBuilder sb = new StringBuilder(method.getName()).append('(');
+            final Class<?>[] types = method.getParameterTypes();
+            for (int i = 0; i < types.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(types[i].getSimpleName());
+            }
+            return sb.append(')').toString();
+        }
+    }
+
+    static Properties loadBudgets() throws IOException {
+        final Properties budgets = new Properties();
+        try (InputStream in = DateUtilAllocationTest.class.getResourceAsStream(BUDGETS)) {
+            assertNotNull("Missing " + BUDGETS, in);
+            budgets.load(in);
+        }
+        return budgets;
+    }
+}